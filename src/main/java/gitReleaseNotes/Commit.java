@@ -16,6 +16,8 @@ class Commit {
 	String author;
 	Date date;
 	Set<String> modules = new HashSet<String>();
+	String type; // Conventional commit type, null if not classified.
+	Set<String> issues = new HashSet<String>();
 
 	Commit(final String message, final String author, final Date date, final Set<String> modifiedFiles) {
 		this.message = message;
@@ -45,4 +47,12 @@ class Commit {
 	public Set<String> getModules() {
 		return modules;
 	}
+
+	public String getType() {
+		return type;
+	}
+
+	public Set<String> getIssues() {
+		return issues;
+	}
 }
@@ -0,0 +1,29 @@
+package gitReleaseNotes;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Collects the commits of a repository and writes them into the report.
+ *
+ * @author yesly
+ *
+ */
+interface CommitCollector {
+	void addCommit(Commit c) throws IOException;
+
+	/**
+	 * Writes the repository name and its commits into the report.
+	 *
+	 * @param writer to write to .txt file
+	 * @param byModules
+	 * @throws IOException
+	 */
+	void write(PrintWriter writer, boolean byModules) throws IOException;
+
+	/**
+	 * Releases what the collector keeps outside of the heap, e.g. spilled files.
+	 * Called once the commits are written or collecting them failed.
+	 */
+	void close();
+}
@@ -1,5 +1,7 @@
 package gitReleaseNotes;
 
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -12,24 +14,78 @@ import java.util.TreeMap;
  * @author yesly
  *
  */
-class Commits {
+class Commits implements CommitCollector {
+	static final String BY_TYPE = "\tBy type:\n";
+	static final String BY_ISSUE = "\tBy issue:\n";
+
 	List<Commit> listCommits = new ArrayList<Commit>();
 	String repoName;
+	Map<String, List<Commit>> byType = new TreeMap<String, List<Commit>>();
+	Map<String, List<Commit>> byIssue = new TreeMap<String, List<Commit>>(MessageClassifier.ISSUE_ORDER);
 
 	public Commits(final String repoName) {
 		this.repoName = repoName;
 	}
 
-	void addCommit(final Commit c) {
+	@Override
+	public void addCommit(final Commit c) {
 		listCommits.add(c);
+		if (c.getType() != null) {
+			group(byType, c.getType(), c);
+		}
+		final Iterator<String> it = c.getIssues().iterator();
+		while (it.hasNext()) {
+			group(byIssue, it.next(), c);
+		}
+	}
+
+	private static void group(final Map<String, List<Commit>> map, final String key, final Commit c) {
+		List<Commit> list = map.get(key);
+		if (list == null) {
+			list = new ArrayList<Commit>();
+			map.put(key, list);
+		}
+		list.add(c);
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public void write(final PrintWriter writer, final boolean byModules) throws IOException {
+		writer.println(toString(byModules));
 	}
 
 	public String toString(boolean byModules) {
 		String s = repoName + ":\n";
 		if (byModules) {
-			return s + toStringByModules();
+			return s + toStringByModules() + toStringByClassification();
 		}
-		return s + toStringNotByModule(byModules);
+		return s + toStringNotByModule(byModules) + toStringByClassification();
+	}
+
+	/**
+	 * Lists the commits grouped by conventional commit type and then by issue
+	 * key, each under its own heading. Empty if the commits were not classified.
+	 */
+	public String toStringByClassification() {
+		return toStringGroups(BY_TYPE, byType) + toStringGroups(BY_ISSUE, byIssue);
+	}
+
+	private static String toStringGroups(final String heading, final Map<String, List<Commit>> map) {
+		if (map.isEmpty()) {
+			return "";
+		}
+		String s = heading;
+		for (Map.Entry<String, List<Commit>> entry : map.entrySet()) {
+			s += "\t\t" + entry.getKey() + ": \n";
+			final Iterator<Commit> it = entry.getValue().iterator();
+			while (it.hasNext()) {
+				s += "\t" + it.next().toString(true);
+			}
+		}
+		return s;
 	}
 
 	public String toStringNotByModule(boolean byModules) {
@@ -54,10 +110,10 @@ class Commits {
 				Commits com;
 				if (map.containsKey(module)) {
 					com = map.get(module);
-					com.addCommit(c);
+					com.listCommits.add(c); // Module copies are not grouped by type and issue.
 				} else {
 					com = new Commits(repoName);
-					com.addCommit(c);
+					com.listCommits.add(c);
 				}
 				map.put(module, com);
 			}
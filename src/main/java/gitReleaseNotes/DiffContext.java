@@ -0,0 +1,105 @@
+package gitReleaseNotes;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.errors.CorruptObjectException;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
+/**
+ * Diff state shared by all the commits of a repository. One object reader (and
+ * with it the inflater and pack window cursor), one diff formatter and rename
+ * detector, and a small cache of root trees are reused across the whole walk,
+ * instead of being created for every commit.
+ *
+ * @author yesly
+ *
+ */
+class DiffContext implements AutoCloseable {
+	private static final int TREE_CACHE_SIZE = 16;
+
+	private final ObjectReader reader;
+	private final DiffFormatter df;
+	private final Map<ObjectId, byte[]> trees = new LinkedHashMap<ObjectId, byte[]>(TREE_CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<ObjectId, byte[]> eldest) {
+			return size() > TREE_CACHE_SIZE;
+		}
+	};
+
+	DiffContext(final Repository repo) {
+		reader = repo.newObjectReader();
+		df = new DiffFormatter(DisabledOutputStream.INSTANCE);
+		df.setReader(reader, repo.getConfig());
+		df.setDetectRenames(true);
+	}
+
+	/**
+	 * Gets the set of modified files by the given commit. For a root commit these
+	 * are the top level entries of its tree.
+	 *
+	 * @param commit
+	 * @return set of modified files
+	 * @throws MissingObjectException
+	 * @throws IncorrectObjectTypeException
+	 * @throws CorruptObjectException
+	 * @throws IOException
+	 */
+	Set<String> getFilesForCommit(final RevCommit commit) throws MissingObjectException, IncorrectObjectTypeException, CorruptObjectException, IOException {
+		final Set<String> files = new HashSet<String>();
+
+		if (commit.getParentCount() == 0) {
+			final TreeWalk treeWalk = new TreeWalk(reader);
+			treeWalk.reset(commit.getTree());
+			while (treeWalk.next()) {
+				files.add(treeWalk.getPathString());
+			}
+			treeWalk.close();
+			return files;
+		}
+
+		// Get differences between this and previous commit. The log's RevWalk parses
+		// the parents before returning a commit. In a linear history the parent's
+		// tree is the tree of the next commit of the log.
+		final List<DiffEntry> diffs = df.scan(getTreeParser(commit.getParent(0).getTree()), getTreeParser(commit.getTree()));
+		for (final DiffEntry diff : diffs) { // Add differences to set.
+			files.add(diff.getNewPath());
+		}
+
+		return files;
+	}
+
+	private CanonicalTreeParser getTreeParser(final ObjectId treeId) throws IOException {
+		byte[] raw = trees.get(treeId);
+		if (raw == null) {
+			raw = reader.open(treeId, Constants.OBJ_TREE).getCachedBytes();
+			trees.put(treeId.copy(), raw);
+		}
+		final CanonicalTreeParser parser = new CanonicalTreeParser();
+		parser.reset(raw);
+		return parser;
+	}
+
+	@Override
+	public void close() {
+		df.close();
+		reader.close();
+	}
+}
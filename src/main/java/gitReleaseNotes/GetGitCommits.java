@@ -1,21 +1,23 @@
 package gitReleaseNotes;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.sql.Date;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.apache.log4j.BasicConfigurator;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.errors.AmbiguousObjectException;
-import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
-import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.RevisionSyntaxException;
 import org.eclipse.jgit.internal.storage.file.FileRepository;
 import org.eclipse.jgit.lib.ObjectId;
@@ -23,8 +25,6 @@ import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.submodule.SubmoduleWalk;
-import org.eclipse.jgit.treewalk.TreeWalk;
-import org.eclipse.jgit.util.io.DisabledOutputStream;
 
 public class GetGitCommits {
 	private final String pathToRepo;
@@ -33,16 +33,47 @@ public class GetGitCommits {
 	private final boolean byModules;
 	private final boolean allCommits; // default is since last tagged commit
 	private final boolean byVersion;
+	private final MessageClassifier classifier; // null to not group by type and issue
+	private final long memoryLimit; // 0 to group by modules in memory
 
 	public GetGitCommits(final String pathToRepo, final String reportName, final boolean gitSubModules, final boolean byModules, final boolean allCommits, final boolean byVersion)
 			throws IOException, GitAPIException {
+		this(pathToRepo, reportName, gitSubModules, byModules, allCommits, byVersion, null);
+	}
+
+	public GetGitCommits(final String pathToRepo, final String reportName, final boolean gitSubModules, final boolean byModules, final boolean allCommits, final boolean byVersion,
+			final MessageClassifier classifier) throws IOException, GitAPIException {
+		this(pathToRepo, reportName, gitSubModules, byModules, allCommits, byVersion, classifier, 0);
+	}
+
+	/**
+	 * @param memoryLimit approximate bytes of grouped commits and spill buffers
+	 *                    kept in memory when grouping by modules, the rest is
+	 *                    spilled to disk. 0 for no limit. JGit's own memory (e.g.
+	 *                    the headers of the walked commits) is not covered.
+	 */
+	public GetGitCommits(final String pathToRepo, final String reportName, final boolean gitSubModules, final boolean byModules, final boolean allCommits, final boolean byVersion,
+			final MessageClassifier classifier, final long memoryLimit) throws IOException, GitAPIException {
+		this(pathToRepo, reportName, gitSubModules, byModules, allCommits, byVersion, classifier, memoryLimit, true);
+	}
+
+	/**
+	 * @param build false to only configure the report builder, used by
+	 *              {@link ReportWatcher} which builds the sections itself
+	 */
+	GetGitCommits(final String pathToRepo, final String reportName, final boolean gitSubModules, final boolean byModules, final boolean allCommits, final boolean byVersion,
+			final MessageClassifier classifier, final long memoryLimit, final boolean build) throws IOException, GitAPIException {
 		this.pathToRepo = pathToRepo;
 		this.reportName = reportName;
 		this.gitSubModules = gitSubModules;
 		this.byModules = byModules;
 		this.allCommits = allCommits;
 		this.byVersion = byVersion;
-		buildReport();
+		this.classifier = classifier;
+		this.memoryLimit = memoryLimit;
+		if (build) {
+			buildReport();
+		}
 	}
 
 	/**
@@ -54,21 +85,18 @@ public class GetGitCommits {
 	private void buildReport() throws IOException, GitAPIException {
 		BasicConfigurator.configure();
 		final PrintWriter writer = new PrintWriter(reportName + ".txt", "UTF-8");
-		if(allCommits) {
-			writer.println("All commits:");
-		} else {
-			writer.println("Commits Since Last Tagged Commit:");
-		}
+		writeHeader(writer);
 
 		Repository repo = new FileRepository(pathToRepo + ".git");
-		writer.println(getCommits(writer, repo, null).toString(byModules));
+		writeSection(writer, repo, getRepoName(null));
 
 		if (gitSubModules) {
 			final SubmoduleWalk walk = SubmoduleWalk.forIndex(repo);
 			while (walk.next()) {
 				repo = walk.getRepository();
-				writer.println(getCommits(writer, repo, walk).toString(byModules));
-
+				if (repo != null) { // Not initialized sub modules have no commits.
+					writeSection(writer, repo, getRepoName(walk));
+				}
 			}
 		}
 
@@ -76,18 +104,119 @@ public class GetGitCommits {
 	}
 
 	/**
-	 * Gets the list of commits for the given repository.
+	 * Writes the report header followed by the given sections into the .txt file.
+	 * The report is written next to the old one and then moved over it, so a
+	 * reader never sees a half written report.
+	 * 
+	 * @param sections one file per repository, in report order, as written by
+	 *                 writeSection
+	 * @throws IOException
+	 */
+	void writeReport(final Iterable<File> sections) throws IOException {
+		final File report = new File(reportName + ".txt").getAbsoluteFile();
+		final File tmp = File.createTempFile(report.getName(), ".tmp", report.getParentFile());
+		try {
+			final OutputStream out = new FileOutputStream(tmp);
+			try {
+				final PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+				writeHeader(writer);
+				writer.flush();
+				for (final File section : sections) {
+					Files.copy(section.toPath(), out);
+				}
+			} finally {
+				out.close();
+			}
+			Files.move(tmp.toPath(), report.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			tmp.delete(); // Only left over if the report could not be written.
+		}
+	}
+
+	private void writeHeader(final PrintWriter writer) {
+		if(allCommits) {
+			writer.println("All commits:");
+		} else {
+			writer.println("Commits Since Last Tagged Commit:");
+		}
+	}
+
+	/**
+	 * Writes the report section of a single repository.
 	 * 
 	 * @param writer to write to .txt file
 	 * @param repo
-	 * @param walk   if null not a sub module
-	 * @return Commits for the given repository
+	 * @param repoName
+	 * @throws IOException
+	 * @throws GitAPIException
+	 */
+	private void writeSection(final PrintWriter writer, final Repository repo, final String repoName) throws IOException, GitAPIException {
+		final CommitCollector com = getCommits(repo, repoName);
+		if (com == null) {
+			writer.println("");
+			return;
+		}
+		try {
+			com.write(writer, byModules);
+		} finally {
+			com.close();
+		}
+	}
+
+	/**
+	 * Writes the report section of a single repository into its own file. The
+	 * file is only replaced once the section is complete, so it keeps the last
+	 * good section if building fails.
+	 * 
+	 * @param file
+	 * @param repo
+	 * @param repoName
+	 * @throws IOException
+	 * @throws GitAPIException
+	 */
+	void writeSection(final File file, final Repository repo, final String repoName) throws IOException, GitAPIException {
+		final File tmp = new File(file.getPath() + ".tmp");
+		final PrintWriter writer = new PrintWriter(tmp, "UTF-8");
+		try {
+			writeSection(writer, repo, repoName);
+			writer.close();
+			if (writer.checkError()) {
+				throw new IOException("Could not write " + tmp);
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			writer.close();
+			tmp.delete(); // Only left over if the section could not be built.
+		}
+	}
+
+	/**
+	 * Gets the name shown in the report for a repository.
+	 * 
+	 * @param walk if null not a sub module
+	 * @return the repository name
+	 * @throws IOException
+	 */
+	String getRepoName(final SubmoduleWalk walk) throws IOException {
+		if (walk != null) {
+			return walk.getModuleName();
+		}
+		final String segments[] = pathToRepo.split("/");
+		return segments[segments.length - 1];
+	}
+
+	/**
+	 * Gets the list of commits for the given repository.
+	 * 
+	 * @param repo
+	 * @param repoName
+	 * @return Commits for the given repository, to be closed by the caller
 	 * @throws GitAPIException
 	 * @throws AmbiguousObjectException
 	 * @throws IncorrectObjectTypeException
 	 * @throws IOException
 	 */
-	private Commits getCommits(final PrintWriter writer, final Repository repo, final SubmoduleWalk walk)
+	private CommitCollector getCommits(final Repository repo, final String repoName)
 			throws GitAPIException, AmbiguousObjectException, IncorrectObjectTypeException, IOException {
 		final Git git = new Git(repo);
 		final ObjectId lastTaggedCommit = getLastTaggedCommit(repo, git);
@@ -96,28 +225,38 @@ public class GetGitCommits {
 			return null;
 		}
 
-		String repoName;
-		if (walk != null) {
-			repoName = walk.getModuleName();
+		final CommitCollector com;
+		if (byModules && memoryLimit > 0) {
+			com = new SpilledCommits(repoName, memoryLimit);
 		} else {
-			final String segments[] = pathToRepo.split("/");
-			repoName = segments[segments.length - 1];
+			com = new Commits(repoName);
 		}
 		
-		final Commits com = new Commits(repoName);
-		
 		Iterable<RevCommit> commitsIter = git.log().addRange(lastTaggedCommit, headCommit).call();
 		if (allCommits) {
 			commitsIter = git.log().all().call();
 		}
 		
-		for (final RevCommit commit : commitsIter) {
-			final Set<String> modifiedFiles = getFilesForCommit(repo, commit);
-			String message = commit.getFullMessage();
-			message = message.replace("\n", " ");
-			final String author = commit.getAuthorIdent().getName();
-			final Date date = new Date(commit.getCommitTime() * 1000L);
-			com.addCommit(new Commit(message, author, date, modifiedFiles));
+		boolean collected = false;
+		try (final DiffContext diffs = new DiffContext(repo)) {
+			for (final RevCommit commit : commitsIter) {
+				final Set<String> modifiedFiles = diffs.getFilesForCommit(commit);
+				String message = commit.getFullMessage();
+				message = message.replace("\n", " ");
+				final String author = commit.getAuthorIdent().getName();
+				final Date date = new Date(commit.getCommitTime() * 1000L);
+				commit.disposeBody(); // The log's RevWalk keeps every commit, keep only its header.
+				final Commit c = new Commit(message, author, date, modifiedFiles);
+				if (classifier != null) {
+					classifier.classify(c);
+				}
+				com.addCommit(c);
+			}
+			collected = true;
+		} finally {
+			if (!collected) {
+				com.close(); // Deletes the runs spilled before the failure.
+			}
 		}
 
 		git.close();
@@ -125,51 +264,6 @@ public class GetGitCommits {
 		return com;
 	}
 
-	/**
-	 * Gets the set of modified files by the given commit.
-	 * 
-	 * @param repo
-	 * @param commit
-	 * @return set of modified files
-	 * @throws CorruptObjectException 
-	 * @throws IncorrectObjectTypeException 
-	 * @throws MissingObjectException 
-	 * @throws IOException
-	 */
-	private static Set<String> getFilesForCommit(final Repository repo, final RevCommit commit) throws MissingObjectException, IncorrectObjectTypeException, CorruptObjectException, IOException {
-		final Set<String> files = new HashSet<String>();
-		
-		final DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE);
-		df.setRepository(repo);
-		df.setDetectRenames(true);
-		
-		List<DiffEntry> diffs;
-		try {
-			diffs = df.scan(commit.getParent(0).getTree(), commit.getTree());  // Get differences between this and previous commit
-			
-			for (final DiffEntry diff : diffs) { // Add differences to set.
-				files.add(diff.getNewPath());
-			}
-
-			df.close();
-			
-		} catch (ArrayIndexOutOfBoundsException e) {
-			ObjectId treeId = commit.getTree();
-			TreeWalk treeWalk = new TreeWalk(repo);
-			treeWalk.reset(treeId);
-			
-			while (treeWalk.next()) {
-			    files.add(treeWalk.getPathString());
-			}
-			
-			treeWalk.close();
-			
-			return files;
-		}
-
-		return files;
-	}
-
 	/**
 	 * Gets the last tagged commit's object id. Checks for lightweight and annotated
 	 * tags.
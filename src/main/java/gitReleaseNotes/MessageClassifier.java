@@ -0,0 +1,231 @@
+package gitReleaseNotes;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Classifies commit messages by conventional commit type (e.g. feat, fix) and
+ * issue keys (e.g. ABC-1234). All configured types and project keys are
+ * compiled into a single Aho-Corasick automaton, so each message is scanned
+ * once no matter how many keywords are configured. Types are not case
+ * sensitive (Fix: and FEAT: are fix and feat), issue keys are.
+ *
+ * @author yesly
+ *
+ */
+public class MessageClassifier {
+	private static final int ALPHABET = 128; // Keywords are ASCII, other characters share class 0.
+
+	/**
+	 * Orders issue keys by project key and then by number, so ABC-4 comes before
+	 * ABC-36 and ABC-1001.
+	 */
+	public static final Comparator<String> ISSUE_ORDER = new Comparator<String>() {
+		@Override
+		public int compare(final String a, final String b) {
+			final int dashA = a.lastIndexOf('-');
+			final int dashB = b.lastIndexOf('-');
+			int c = a.substring(0, dashA).compareTo(b.substring(0, dashB));
+			if (c != 0) {
+				return c;
+			}
+			final String numberA = stripZeros(a.substring(dashA + 1));
+			final String numberB = stripZeros(b.substring(dashB + 1));
+			c = numberA.length() - numberB.length(); // Numbers of any length, without overflow.
+			if (c != 0) {
+				return c;
+			}
+			c = numberA.compareTo(numberB);
+			if (c != 0) {
+				return c;
+			}
+			return a.compareTo(b); // ABC-01 and ABC-1 stay distinct keys.
+		}
+	};
+
+	private final String[] keywords;
+	private final boolean[] isType;
+	private final int[] charClass = new int[ALPHABET];
+	private final int classes;
+	private int[] next; // Transition table, states * classes.
+	private int[][] output; // Keyword indexes matched when entering a state.
+
+	/**
+	 * @param types       conventional commit types, e.g. feat, fix, docs
+	 * @param projectKeys issue tracker project keys, e.g. ABC for ABC-1234
+	 */
+	public MessageClassifier(final Collection<String> types, final Collection<String> projectKeys) {
+		final List<String> words = new ArrayList<String>();
+		final List<Boolean> kinds = new ArrayList<Boolean>();
+		for (final String type : types) {
+			words.add(type);
+			kinds.add(true);
+		}
+		for (final String key : projectKeys) {
+			words.add(key + "-");
+			kinds.add(false);
+		}
+
+		keywords = words.toArray(new String[words.size()]);
+		isType = new boolean[keywords.length];
+		int c = 1;
+		for (int i = 0; i < keywords.length; i++) {
+			isType[i] = kinds.get(i);
+			if (keywords[i].isEmpty()) {
+				throw new IllegalArgumentException("Empty keyword");
+			}
+			for (final char ch : keywords[i].toCharArray()) {
+				if (ch >= ALPHABET) {
+					throw new IllegalArgumentException("Keyword is not ASCII: " + keywords[i]);
+				}
+				if (charClass[ch] == 0) {
+					charClass[ch] = c++;
+				}
+				if (isType[i]) { // Both cases of a letter share the class, types come first.
+					charClass[Character.toLowerCase(ch)] = charClass[ch];
+					charClass[Character.toUpperCase(ch)] = charClass[ch];
+				}
+			}
+		}
+		classes = c;
+		build();
+	}
+
+	/**
+	 * Sets the type and issue keys of the given commit from its message.
+	 *
+	 * @param commit
+	 */
+	void classify(final Commit commit) {
+		final String message = commit.message;
+		final Set<String> issues = new LinkedHashSet<String>();
+		String type = null;
+		int issueEnd = -1; // Keys can directly follow each other, e.g. ABC-1ABC-2.
+
+		int state = 0;
+		for (int i = 0; i < message.length(); i++) {
+			final char ch = message.charAt(i);
+			state = next[state * classes + (ch < ALPHABET ? charClass[ch] : 0)];
+			for (final int k : output[state]) {
+				final int start = i + 1 - keywords[k].length();
+				// The automaton ignores case for the letters of types, check the exact match.
+				if (!message.regionMatches(isType[k], start, keywords[k], 0, keywords[k].length())) {
+					continue;
+				}
+				if (isType[k]) {
+					if (start == 0 && type == null && isTypeEnd(message, i + 1)) {
+						type = keywords[k];
+					}
+				} else if (start == 0 || start == issueEnd || !Character.isLetterOrDigit(message.charAt(start - 1))) {
+					int end = i + 1;
+					while (end < message.length() && Character.isDigit(message.charAt(end))) {
+						end++;
+					}
+					if (end > i + 1) {
+						issues.add(message.substring(start, end));
+						issueEnd = end;
+					}
+				}
+			}
+		}
+
+		commit.type = type;
+		commit.issues = issues;
+	}
+
+	private static String stripZeros(final String number) {
+		int i = 0;
+		while (i < number.length() - 1 && number.charAt(i) == '0') {
+			i++;
+		}
+		return number.substring(i);
+	}
+
+	/**
+	 * Checks that a type is followed by an optional scope, an optional breaking
+	 * change marker and a colon, e.g. "feat(parser)!: ".
+	 */
+	private static boolean isTypeEnd(final String message, int pos) {
+		if (pos < message.length() && message.charAt(pos) == '(') {
+			final int close = message.indexOf(')', pos);
+			if (close < 0) {
+				return false;
+			}
+			pos = close + 1;
+		}
+		if (pos < message.length() && message.charAt(pos) == '!') {
+			pos++;
+		}
+		return pos < message.length() && message.charAt(pos) == ':';
+	}
+
+	/**
+	 * Builds the trie of the keywords and turns it into a complete transition
+	 * table by following the failure links breadth first.
+	 */
+	private void build() {
+		final List<int[]> trie = new ArrayList<int[]>();
+		final List<List<Integer>> outs = new ArrayList<List<Integer>>();
+		trie.add(new int[classes]);
+		outs.add(new ArrayList<Integer>());
+
+		for (int k = 0; k < keywords.length; k++) {
+			int state = 0;
+			for (final char ch : keywords[k].toCharArray()) {
+				final int c = charClass[ch];
+				if (trie.get(state)[c] == 0) {
+					trie.get(state)[c] = trie.size();
+					trie.add(new int[classes]);
+					outs.add(new ArrayList<Integer>());
+				}
+				state = trie.get(state)[c];
+			}
+			outs.get(state).add(k);
+		}
+
+		final int states = trie.size();
+		next = new int[states * classes];
+		output = new int[states][];
+		final int[] fail = new int[states];
+		final Queue<Integer> queue = new ArrayDeque<Integer>();
+
+		output[0] = new int[0];
+		for (int c = 0; c < classes; c++) {
+			final int child = trie.get(0)[c];
+			next[c] = child;
+			if (child != 0) {
+				queue.add(child);
+			}
+		}
+
+		while (!queue.isEmpty()) {
+			final int state = queue.remove();
+			final List<Integer> own = outs.get(state);
+			final int[] inherited = output[fail[state]];
+			output[state] = Arrays.copyOf(inherited, inherited.length + own.size());
+			final Iterator<Integer> it = own.iterator();
+			for (int i = inherited.length; it.hasNext(); i++) {
+				output[state][i] = it.next();
+			}
+
+			for (int c = 0; c < classes; c++) {
+				final int child = trie.get(state)[c];
+				if (child != 0) {
+					fail[child] = next[fail[state] * classes + c];
+					next[state * classes + c] = child;
+					queue.add(child);
+				} else {
+					next[state * classes + c] = next[fail[state] * classes + c];
+				}
+			}
+		}
+	}
+}
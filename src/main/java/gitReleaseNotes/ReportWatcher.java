@@ -0,0 +1,276 @@
+package gitReleaseNotes;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.BasicConfigurator;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.submodule.SubmoduleWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the release notes of a repository up to date. Watches HEAD and the
+ * refs of the repository and of its Git sub modules, and rebuilds only the
+ * section of the repository whose refs moved. Each section is kept in its own
+ * temporary file, so the memory limit also holds between rebuilds.
+ *
+ * @author yesly
+ *
+ */
+public class ReportWatcher {
+	private static final String HEAD = "HEAD";
+	private static final String PACKED_REFS = "packed-refs";
+	private static final String REFS = "refs";
+	private static final String LOCK_SUFFIX = ".lock";
+	private static final Logger LOG = LoggerFactory.getLogger(ReportWatcher.class);
+
+	private final GetGitCommits report;
+	private final String pathToRepo;
+	private final boolean gitSubModules;
+	private final long debounceMillis;
+	private final List<Section> sections = new ArrayList<Section>();
+	private final Map<WatchKey, Section> keys = new HashMap<WatchKey, Section>();
+	private WatchService watcher;
+	private volatile int reportsWritten;
+
+	/**
+	 * Class to represent one repository of the report and the file with its last
+	 * rendered section.
+	 */
+	private static class Section {
+		final Repository repo;
+		final String repoName;
+		final File file;
+
+		Section(final Repository repo, final String repoName, final File file) {
+			this.repo = repo;
+			this.repoName = repoName;
+			this.file = file;
+		}
+	}
+
+	public ReportWatcher(final String pathToRepo, final String reportName, final boolean gitSubModules, final boolean byModules, final boolean allCommits, final long debounceMillis)
+			throws IOException, GitAPIException {
+		this(pathToRepo, reportName, gitSubModules, byModules, allCommits, null, 0, debounceMillis);
+	}
+
+	/**
+	 * @param classifier     null to not group by type and issue
+	 * @param memoryLimit    approximate bytes of commits kept in memory when
+	 *                       grouping by modules, 0 for no limit
+	 * @param debounceMillis time without ref changes before rebuilding
+	 */
+	public ReportWatcher(final String pathToRepo, final String reportName, final boolean gitSubModules, final boolean byModules, final boolean allCommits,
+			final MessageClassifier classifier, final long memoryLimit, final long debounceMillis) throws IOException, GitAPIException {
+		this.report = new GetGitCommits(pathToRepo, reportName, gitSubModules, byModules, allCommits, false, classifier, memoryLimit, false);
+		this.pathToRepo = pathToRepo;
+		this.gitSubModules = gitSubModules;
+		this.debounceMillis = debounceMillis;
+	}
+
+	/**
+	 * Builds the whole report once and then rebuilds the affected sections every
+	 * time a ref moves. Blocks until the thread is interrupted. A failed rebuild
+	 * (e.g. objects missing during a push or gc) is logged and the last good
+	 * section is kept until the next ref change. The repositories and section
+	 * files only live while watching.
+	 *
+	 * @throws IOException
+	 * @throws GitAPIException
+	 */
+	public void watch() throws IOException, GitAPIException {
+		BasicConfigurator.configure();
+		final File sectionsDir = Files.createTempDirectory("report-sections").toFile();
+		watcher = FileSystems.getDefault().newWatchService();
+		try {
+			openSections(sectionsDir);
+			for (final Section section : sections) {
+				register(section);
+				report.writeSection(section.file, section.repo, section.repoName);
+			}
+			writeReport();
+
+			while (true) {
+				final Set<Section> changed = waitForChanges();
+				if (changed == null) {
+					return;
+				}
+				for (final Section section : changed) {
+					try {
+						report.writeSection(section.file, section.repo, section.repoName);
+					} catch (IOException | GitAPIException e) {
+						LOG.error("Could not rebuild the section of " + section.repoName, e);
+					}
+				}
+				try {
+					writeReport();
+				} catch (IOException e) {
+					LOG.error("Could not write the report", e);
+				}
+			}
+		} finally {
+			watcher.close();
+			keys.clear();
+			for (final Section section : sections) {
+				section.repo.close();
+				section.file.delete();
+			}
+			sections.clear();
+			sectionsDir.delete();
+		}
+	}
+
+	/**
+	 * Number of times the report was written since watching started.
+	 */
+	int getReportsWritten() {
+		return reportsWritten;
+	}
+
+	private void openSections(final File sectionsDir) throws IOException {
+		final Repository repo = new FileRepository(pathToRepo + ".git");
+		sections.add(new Section(repo, report.getRepoName(null), new File(sectionsDir, "0.txt")));
+
+		if (gitSubModules) {
+			final SubmoduleWalk walk = SubmoduleWalk.forIndex(repo);
+			while (walk.next()) {
+				final Repository subRepo = walk.getRepository();
+				if (subRepo != null) { // Not initialized sub modules have no repository to watch.
+					sections.add(new Section(subRepo, report.getRepoName(walk), new File(sectionsDir, sections.size() + ".txt")));
+				}
+			}
+			walk.close();
+		}
+	}
+
+	/**
+	 * Blocks until a ref moves and then waits until no more refs move for the
+	 * debounce time, so a burst of pushes triggers a single rebuild. Events that
+	 * are not ref changes (index, FETCH_HEAD, ...) do not extend the wait.
+	 *
+	 * @return sections whose refs moved, null if the thread was interrupted
+	 * @throws IOException
+	 */
+	private Set<Section> waitForChanges() throws IOException {
+		final Set<Section> changed = new LinkedHashSet<Section>();
+		long deadline = 0;
+		try {
+			WatchKey key = watcher.take(); // Sleeps while nothing moves.
+			while (key != null) {
+				final Section section = keys.get(key);
+				if (section != null && isRefChange(key, section)) {
+					changed.add(section);
+					deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+				} else if (section == null) {
+					key.pollEvents();
+				}
+				if (!key.reset()) {
+					keys.remove(key);
+				}
+
+				if (changed.isEmpty()) {
+					key = watcher.take();
+				} else {
+					final long remaining = deadline - System.nanoTime();
+					key = remaining > 0 ? watcher.poll(remaining, TimeUnit.NANOSECONDS) : null;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		return changed;
+	}
+
+	/**
+	 * Checks the events of a key for ref updates. Lock files and the rest of the
+	 * Git directory (objects, index, logs) are ignored.
+	 *
+	 * @param key
+	 * @param section owning the watched directory
+	 * @return true if a ref of the section moved
+	 * @throws IOException
+	 */
+	private boolean isRefChange(final WatchKey key, final Section section) throws IOException {
+		final Path dir = (Path) key.watchable();
+		final boolean gitDir = dir.equals(section.repo.getDirectory().toPath());
+		boolean moved = false;
+
+		for (final WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW) {
+				moved = true;
+				continue;
+			}
+			final Path child = dir.resolve((Path) event.context());
+			final String name = child.getFileName().toString();
+			if (gitDir) {
+				moved |= name.equals(HEAD) || name.equals(PACKED_REFS);
+			} else if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+				registerAll(child, section); // New ref namespace, e.g. refs/heads/feature/.
+				moved = true;
+			} else {
+				moved |= !name.endsWith(LOCK_SUFFIX);
+			}
+		}
+		return moved;
+	}
+
+	/**
+	 * Watches the Git directory of a section for HEAD and packed-refs, and all
+	 * directories below refs for loose refs.
+	 *
+	 * @param section
+	 * @throws IOException
+	 */
+	private void register(final Section section) throws IOException {
+		final File gitDir = section.repo.getDirectory();
+		keys.put(gitDir.toPath().register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), section);
+		registerAll(new File(gitDir, REFS).toPath(), section);
+	}
+
+	private void registerAll(final Path root, final Section section) throws IOException {
+		if (!Files.isDirectory(root)) {
+			return;
+		}
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+				keys.put(dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), section);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private void writeReport() throws IOException {
+		final List<File> files = new ArrayList<File>();
+		for (final Section section : sections) {
+			files.add(section.file);
+		}
+		report.writeReport(files);
+		reportsWritten++;
+	}
+}
@@ -0,0 +1,355 @@
+package gitReleaseNotes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Collection of commits grouped by modules that keeps a bounded amount of
+ * memory. Every commit becomes one record per module, type and issue (group,
+ * key, commit order, rendered line). Records are sorted and spilled into run
+ * files whenever the buffer is full, and the runs are merged, at most fanIn at
+ * a time, when the report is written. The runs live in a temporary directory
+ * of the collector until it is closed. The output is the same as
+ * {@link Commits#write(PrintWriter, boolean)} by modules.
+ *
+ * The memory limit covers the buffered records and the read and write buffers
+ * of the run files. Limits below MIN_RUN_BYTES are raised to it, so runs do not
+ * get smaller than that, and a merge always reads at least two runs. The limit
+ * does not cover JGit (the commit headers kept by the log's RevWalk, pack and
+ * delta caches) nor the commit that is being collected.
+ *
+ * @author yesly
+ *
+ */
+class SpilledCommits implements CommitCollector {
+	private static final int MODULES = 0;
+	private static final int TYPES = 1;
+	private static final int ISSUES = 2;
+	private static final int RECORD_OVERHEAD = 64; // Object headers and references of a buffered record.
+	private static final int IO_BUFFER = 8192;
+	private static final long MIN_RUN_BYTES = 64 * 1024;
+	private static final int MAX_FAN_IN = 64;
+
+	private final String repoName;
+	private final long runBytes;
+	private final int fanIn;
+	private final List<Record> buffer = new ArrayList<Record>();
+	private final List<File> runs = new ArrayList<File>();
+	private final List<File> files = new ArrayList<File>(); // Every run file not deleted yet.
+	private File runsDir; // Created on the first spill.
+	private long bufferBytes;
+	private long order;
+
+	/**
+	 * Class to represent one line of the grouped report.
+	 */
+	private static class Record implements Comparable<Record> {
+		final int group;
+		final String key;
+		final long order;
+		final String line;
+
+		Record(final int group, final String key, final long order, final String line) {
+			this.group = group;
+			this.key = key;
+			this.order = order;
+			this.line = line;
+		}
+
+		@Override
+		public int compareTo(final Record o) {
+			if (group != o.group) {
+				return group < o.group ? -1 : 1;
+			}
+			final int c = group == ISSUES ? MessageClassifier.ISSUE_ORDER.compare(key, o.key) : key.compareTo(o.key);
+			if (c != 0) {
+				return c;
+			}
+			return order < o.order ? -1 : (order == o.order ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Sorted sequence of records: a run file, the buffer or a merge of runs.
+	 */
+	private abstract static class Run implements Comparable<Run> {
+		Record head;
+
+		abstract void advance() throws IOException;
+
+		void close() throws IOException {
+		}
+
+		@Override
+		public int compareTo(final Run o) {
+			return head.compareTo(o.head);
+		}
+	}
+
+	private static class FileRun extends Run {
+		private final DataInputStream in;
+
+		FileRun(final File file) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), IO_BUFFER));
+			advance();
+		}
+
+		@Override
+		void advance() throws IOException {
+			try {
+				final int group = in.readByte();
+				final String key = readString(in);
+				final long order = in.readLong();
+				head = new Record(group, key, order, readString(in));
+			} catch (EOFException e) {
+				head = null;
+			}
+		}
+
+		@Override
+		void close() throws IOException {
+			in.close();
+		}
+	}
+
+	private static class BufferRun extends Run {
+		private final Iterator<Record> it;
+
+		BufferRun(final List<Record> records) {
+			it = records.iterator();
+			advance();
+		}
+
+		@Override
+		void advance() {
+			head = it.hasNext() ? it.next() : null;
+		}
+	}
+
+	private static class MergedRun extends Run {
+		private final PriorityQueue<Run> queue = new PriorityQueue<Run>();
+		private Run current;
+
+		MergedRun(final List<Run> inputs) throws IOException {
+			for (final Run run : inputs) {
+				if (run.head != null) {
+					queue.add(run);
+				}
+			}
+			advance();
+		}
+
+		@Override
+		void advance() throws IOException {
+			if (current != null) {
+				current.advance();
+				if (current.head != null) {
+					queue.add(current);
+				}
+			}
+			current = queue.poll();
+			head = current == null ? null : current.head;
+		}
+	}
+
+	/**
+	 * @param repoName
+	 * @param memoryLimit approximate bytes of records and file buffers kept in
+	 *                    memory
+	 */
+	SpilledCommits(final String repoName, final long memoryLimit) {
+		this.repoName = repoName;
+		this.runBytes = Math.max(MIN_RUN_BYTES, memoryLimit);
+		// One buffer per merged run and one for the run being written.
+		this.fanIn = (int) Math.max(2, Math.min(MAX_FAN_IN, runBytes / IO_BUFFER - 1));
+	}
+
+	@Override
+	public void addCommit(final Commit c) throws IOException {
+		final String line = c.toString(true);
+		final Iterator<String> modulesIterator = c.getModules().iterator();
+		while (modulesIterator.hasNext()) {
+			add(new Record(MODULES, modulesIterator.next(), order, line));
+		}
+		if (c.getType() != null) {
+			add(new Record(TYPES, c.getType(), order, line));
+		}
+		final Iterator<String> issuesIterator = c.getIssues().iterator();
+		while (issuesIterator.hasNext()) {
+			add(new Record(ISSUES, issuesIterator.next(), order, line));
+		}
+		order++;
+	}
+
+	/**
+	 * Merges the runs, fanIn at a time, until one pass is left and merges that
+	 * pass into the report.
+	 */
+	@Override
+	public void write(final PrintWriter writer, final boolean byModules) throws IOException {
+		if (!runs.isEmpty() && !buffer.isEmpty()) {
+			spill(); // Frees the buffer for the merge buffers.
+		}
+		while (runs.size() > fanIn) {
+			mergePass();
+		}
+
+		Collections.sort(buffer);
+		final List<Run> inputs = new ArrayList<Run>();
+		inputs.add(new BufferRun(buffer));
+		try {
+			for (final File file : runs) {
+				inputs.add(new FileRun(file));
+			}
+			writeMerged(writer, new MergedRun(inputs));
+		} finally {
+			for (final Run run : inputs) {
+				run.close();
+			}
+		}
+	}
+
+	/**
+	 * Deletes the run files and their directory.
+	 */
+	@Override
+	public void close() {
+		for (final File file : files) {
+			file.delete();
+		}
+		if (runsDir != null) {
+			runsDir.delete();
+			runsDir = null;
+		}
+		files.clear();
+		runs.clear();
+		buffer.clear();
+		bufferBytes = 0;
+	}
+
+	private void writeMerged(final PrintWriter writer, final Run merged) throws IOException {
+		writer.print(repoName + ":\n");
+		int group = -1;
+		String key = null;
+		while (merged.head != null) {
+			final Record r = merged.head;
+			if (r.group != group) {
+				writer.print(r.group == TYPES ? Commits.BY_TYPE : (r.group == ISSUES ? Commits.BY_ISSUE : ""));
+			}
+			final String indent = r.group == MODULES ? "" : "\t"; // Types and issues are nested under their heading.
+			if (r.group != group || !r.key.equals(key)) {
+				group = r.group;
+				key = r.key;
+				writer.print(indent + "\t" + key + ": \n");
+			}
+			writer.print(indent + r.line);
+			merged.advance();
+		}
+		writer.println();
+	}
+
+	private void add(final Record r) throws IOException {
+		buffer.add(r);
+		bufferBytes += RECORD_OVERHEAD + 2L * (r.key.length() + r.line.length());
+		if (bufferBytes >= runBytes) {
+			spill();
+		}
+	}
+
+	/**
+	 * Sorts the buffer and writes it into a new run file.
+	 *
+	 * @throws IOException
+	 */
+	private void spill() throws IOException {
+		Collections.sort(buffer);
+		runs.add(writeRun(new BufferRun(buffer)));
+		buffer.clear();
+		bufferBytes = 0;
+	}
+
+	/**
+	 * Merges the runs in batches of fanIn into new runs.
+	 *
+	 * @throws IOException
+	 */
+	private void mergePass() throws IOException {
+		final List<File> merged = new ArrayList<File>();
+		for (int i = 0; i < runs.size(); i += fanIn) {
+			final List<File> batch = runs.subList(i, Math.min(i + fanIn, runs.size()));
+			if (batch.size() == 1) {
+				merged.add(batch.get(0));
+				continue;
+			}
+
+			final List<Run> inputs = new ArrayList<Run>();
+			try {
+				for (final File file : batch) {
+					inputs.add(new FileRun(file));
+				}
+				merged.add(writeRun(new MergedRun(inputs)));
+			} finally {
+				for (final Run run : inputs) {
+					run.close();
+				}
+			}
+			for (final File file : batch) {
+				file.delete();
+				files.remove(file);
+			}
+		}
+		runs.clear();
+		runs.addAll(merged);
+	}
+
+	private File writeRun(final Run source) throws IOException {
+		if (runsDir == null) {
+			runsDir = Files.createTempDirectory("commits-runs").toFile();
+		}
+		final File file = File.createTempFile("run-", ".run", runsDir);
+		files.add(file);
+
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), IO_BUFFER));
+		try {
+			while (source.head != null) {
+				final Record r = source.head;
+				out.writeByte(r.group);
+				writeString(out, r.key);
+				out.writeLong(r.order);
+				writeString(out, r.line);
+				source.advance();
+			}
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	// DataOutput.writeUTF is limited to 64KB, commit messages are not.
+	private static void writeString(final DataOutputStream out, final String s) throws IOException {
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(final DataInputStream in) throws IOException {
+		final byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,91 @@
+package gitReleaseNotes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
+/**
+ * Compares the per commit cost of creating a diff formatter for every commit
+ * with the shared {@link DiffContext}. Timing only, that both give the same
+ * files is checked by {@link DiffContextTests}.
+ *
+ * Usage: DiffContextBenchmark [path to repository] [rounds]
+ *
+ * @author yesly
+ *
+ */
+public class DiffContextBenchmark {
+	public static void main(String[] args) throws IOException, GitAPIException {
+		final String pathToRepo = args.length > 0 ? args[0] : "C:/Users/yesly/Documents/git/electron/";
+		final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		final Repository repo = new FileRepository(pathToRepo + ".git");
+		final Git git = new Git(repo);
+		final List<RevCommit> commits = new ArrayList<RevCommit>();
+		for (final RevCommit commit : git.log().all().call()) {
+			commits.add(commit);
+		}
+
+		long perCommit = Long.MAX_VALUE;
+		long shared = Long.MAX_VALUE;
+		for (int round = 0; round < rounds; round++) { // Best of the rounds, the first ones warm up the JIT.
+			long start = System.nanoTime();
+			for (final RevCommit commit : commits) {
+				getFilesForCommit(repo, commit);
+			}
+			perCommit = Math.min(perCommit, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			final DiffContext diffs = new DiffContext(repo);
+			for (final RevCommit commit : commits) {
+				diffs.getFilesForCommit(commit);
+			}
+			diffs.close();
+			shared = Math.min(shared, System.nanoTime() - start);
+		}
+
+		System.out.println(commits.size() + " commits");
+		System.out.println("DiffFormatter per commit: " + perCommit / 1000 / Math.max(1, commits.size()) + " us/commit");
+		System.out.println("Shared DiffContext:       " + shared / 1000 / Math.max(1, commits.size()) + " us/commit");
+
+		git.close();
+		repo.close();
+	}
+
+	/**
+	 * Previous implementation, a new diff formatter and reader for every commit.
+	 */
+	static Set<String> getFilesForCommit(final Repository repo, final RevCommit commit) throws IOException {
+		final Set<String> files = new HashSet<String>();
+		if (commit.getParentCount() == 0) {
+			final TreeWalk treeWalk = new TreeWalk(repo);
+			treeWalk.reset(commit.getTree());
+			while (treeWalk.next()) {
+				files.add(treeWalk.getPathString());
+			}
+			treeWalk.close();
+			return files;
+		}
+
+		final DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE);
+		df.setRepository(repo);
+		df.setDetectRenames(true);
+		for (final DiffEntry diff : df.scan(commit.getParent(0).getTree(), commit.getTree())) {
+			files.add(diff.getNewPath());
+		}
+		df.close();
+		return files;
+	}
+}
@@ -0,0 +1,76 @@
+package gitReleaseNotes;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+
+public class DiffContextTests {
+
+	@Test
+	public void sameFilesAsDiffFormatterPerCommitTest() throws IOException, GitAPIException {
+		final File dir = Files.createTempDirectory("diff-context").toFile();
+		final Git git = Git.init().setDirectory(dir).call();
+
+		// Root commit.
+		write(dir, "module1/a.txt", "a\nb\nc\nd\ne\nf\n");
+		write(dir, "module2/b.txt", "b\n");
+		write(dir, "c.txt", "c\n");
+		commit(git, "root");
+
+		// Rename.
+		new File(dir, "module3").mkdirs();
+		assertTrue(new File(dir, "module1/a.txt").renameTo(new File(dir, "module3/a.txt")));
+		git.add().setUpdate(true).addFilepattern(".").call();
+		commit(git, "rename");
+
+		// Merge of two branches that changed different files.
+		final String master = git.getRepository().getBranch();
+		git.checkout().setCreateBranch(true).setName("feature").call();
+		write(dir, "module2/b.txt", "b\nfeature\n");
+		commit(git, "on feature");
+		git.checkout().setName(master).call();
+		write(dir, "c.txt", "c\nmaster\n");
+		commit(git, "on master");
+		final ObjectId feature = git.getRepository().resolve("feature");
+		assertTrue(git.merge().include(feature).setMessage("merge").call().getMergeStatus().isSuccessful());
+
+		int commits = 0;
+		int merges = 0;
+		int roots = 0;
+		final DiffContext diffs = new DiffContext(git.getRepository());
+		for (final RevCommit commit : git.log().all().call()) {
+			assertEquals(commit.getShortMessage(), DiffContextBenchmark.getFilesForCommit(git.getRepository(), commit), diffs.getFilesForCommit(commit));
+			commits++;
+			merges += commit.getParentCount() > 1 ? 1 : 0;
+			roots += commit.getParentCount() == 0 ? 1 : 0;
+		}
+		diffs.close();
+		git.close();
+
+		assertEquals(5, commits);
+		assertEquals(1, merges);
+		assertEquals(1, roots);
+	}
+
+	private static void write(final File dir, final String path, final String content) throws IOException {
+		final File file = new File(dir, path);
+		file.getParentFile().mkdirs();
+		final PrintWriter writer = new PrintWriter(file, "UTF-8");
+		writer.print(content);
+		writer.close();
+	}
+
+	private static void commit(final Git git, final String message) throws GitAPIException {
+		git.add().addFilepattern(".").call();
+		git.commit().setAuthor("author", "author@example.com").setCommitter("author", "author@example.com").setMessage(message).call();
+	}
+}
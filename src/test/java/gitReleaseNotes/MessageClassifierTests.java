@@ -0,0 +1,93 @@
+package gitReleaseNotes;
+
+import static org.junit.Assert.*;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MessageClassifierTests {
+	private final MessageClassifier classifier = new MessageClassifier(Arrays.asList("feat", "fix", "fixup"), Arrays.asList("ABC", "BC"));
+
+	@Test
+	public void typeThatIsAPrefixOfAnotherTest() {
+		assertEquals("fix", classify("fix: parser").getType());
+		assertEquals("fixup", classify("fixup: parser").getType());
+		assertEquals("fix", classify("fix(parser)!: drop option").getType());
+		assertNull(classify("fixed the parser").getType());
+	}
+
+	@Test
+	public void typeIgnoresCaseTest() {
+		assertEquals("fix", classify("Fix: parser").getType());
+		assertEquals("feat", classify("FEAT(api): parser").getType());
+		assertEquals("fixup", classify("FixUp: parser").getType());
+	}
+
+	@Test
+	public void issueKeyIsCaseSensitiveTest() {
+		final MessageClassifier fixProject = new MessageClassifier(Arrays.asList("fix"), Arrays.asList("FIX"));
+		final Commit upper = new Commit("fix: FIX-7", "author", new Date(0), new HashSet<String>());
+		fixProject.classify(upper);
+		assertEquals("fix", upper.getType());
+		assertEquals(new HashSet<String>(Arrays.asList("FIX-7")), upper.getIssues());
+
+		final Commit lower = new Commit("fix: fix-7 Fix-8 abc-1", "author", new Date(0), new HashSet<String>());
+		fixProject.classify(lower);
+		assertEquals(Collections.emptySet(), lower.getIssues());
+		assertEquals(Collections.emptySet(), classify("see abc-1").getIssues());
+	}
+
+	@Test
+	public void typeOnlyAtStartTest() {
+		assertNull(classify("revert feat: parser").getType());
+	}
+
+	@Test
+	public void unclosedScopeTest() {
+		assertNull(classify("feat(x: parser").getType());
+	}
+
+	@Test
+	public void overlappingProjectKeysTest() {
+		assertEquals(Collections.emptySet(), classify("see XABC-1").getIssues());
+		assertEquals(new HashSet<String>(Arrays.asList("ABC-1")), classify("see ABC-1").getIssues());
+		assertEquals(new HashSet<String>(Arrays.asList("BC-2")), classify("see BC-2").getIssues());
+	}
+
+	@Test
+	public void keyWithoutDigitsTest() {
+		assertEquals(Collections.emptySet(), classify("ABC- x").getIssues());
+		assertEquals(Collections.emptySet(), classify("ends with ABC-").getIssues());
+	}
+
+	@Test
+	public void adjacentKeysTest() {
+		assertEquals(new HashSet<String>(Arrays.asList("ABC-1", "ABC-2")), classify("ABC-1ABC-2").getIssues());
+	}
+
+	@Test
+	public void nonAsciiBeforeKeyTest() {
+		assertEquals(Collections.emptySet(), classify("caf\u00e9ABC-1").getIssues()); // Letter, not a word boundary.
+		assertEquals(new HashSet<String>(Arrays.asList("ABC-1")), classify("\u2014ABC-1").getIssues()); // Em dash.
+		assertEquals(new HashSet<String>(Arrays.asList("ABC-12")), classify("\u00fcber ABC-12 \u00fcber").getIssues());
+	}
+
+	@Test
+	public void issueOrderTest() {
+		final List<String> keys = new ArrayList<String>(Arrays.asList("ABC-1001", "BC-1", "ABC-36", "ABC-4", "ABC-12"));
+		Collections.sort(keys, MessageClassifier.ISSUE_ORDER);
+		assertEquals(Arrays.asList("ABC-4", "ABC-12", "ABC-36", "ABC-1001", "BC-1"), keys);
+	}
+
+	private Commit classify(final String message) {
+		final Commit c = new Commit(message, "author", new Date(0), new HashSet<String>());
+		classifier.classify(c);
+		return c;
+	}
+}
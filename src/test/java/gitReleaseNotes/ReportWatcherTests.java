@@ -0,0 +1,97 @@
+package gitReleaseNotes;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.Test;
+
+public class ReportWatcherTests {
+	private static final long DEBOUNCE_MILLIS = 300;
+	private static final long TIMEOUT_MILLIS = 20000;
+
+	@Test
+	public void watchTest() throws Exception {
+		final File dir = Files.createTempDirectory("report-watcher").toFile();
+		final Git git = Git.init().setDirectory(dir).call();
+		commit(git, dir, "first");
+		git.tag().setName("v0").call();
+
+		final ReportWatcher watcher = new ReportWatcher(dir.getPath().replace('\\', '/') + "/", dir + "/report", false, false, true, DEBOUNCE_MILLIS);
+		final Exception[] failure = new Exception[1];
+		final Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					watcher.watch();
+				} catch (Exception e) {
+					failure[0] = e;
+				}
+			}
+		};
+		thread.start();
+		try {
+			waitForReports(watcher, 1);
+			final File report = new File(dir, "report.txt");
+			assertTrue(read(report).contains("first"));
+
+			// Touching only the index does not rebuild.
+			final File index = new File(dir, ".git/index");
+			Files.write(index.toPath(), Files.readAllBytes(index.toPath()));
+			Thread.sleep(3 * DEBOUNCE_MILLIS);
+			assertEquals(1, watcher.getReportsWritten());
+
+			// A burst of commits gives one rebuild with all of them.
+			commit(git, dir, "burst one");
+			commit(git, dir, "burst two");
+			commit(git, dir, "burst three");
+			waitForReports(watcher, 2);
+			Thread.sleep(3 * DEBOUNCE_MILLIS);
+			assertEquals(2, watcher.getReportsWritten());
+			final String burst = read(report);
+			assertTrue(burst.contains("burst one") && burst.contains("burst two") && burst.contains("burst three"));
+
+			// A new refs/heads/feature directory is watched: commits on feature/x rebuild.
+			git.checkout().setCreateBranch(true).setName("feature/x").call();
+			waitForReports(watcher, 3);
+			Thread.sleep(3 * DEBOUNCE_MILLIS);
+			final int beforeFeatureCommit = watcher.getReportsWritten();
+			commit(git, dir, "on feature");
+			waitForReports(watcher, beforeFeatureCommit + 1);
+			assertTrue(read(report).contains("on feature"));
+		} finally {
+			thread.interrupt();
+			thread.join(TIMEOUT_MILLIS);
+			git.close();
+		}
+		assertNull(failure[0]);
+	}
+
+	private static void commit(final Git git, final File dir, final String message) throws IOException, GitAPIException {
+		final File module = new File(dir, "module");
+		module.mkdirs();
+		final PrintWriter writer = new PrintWriter(new File(module, "file.txt"), "UTF-8");
+		writer.println(message);
+		writer.close();
+		git.add().addFilepattern(".").call();
+		git.commit().setAuthor("author", "author@example.com").setCommitter("author", "author@example.com").setMessage(message).call();
+	}
+
+	private static void waitForReports(final ReportWatcher watcher, final int reports) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (watcher.getReportsWritten() < reports) {
+			assertTrue("Report not written " + reports + " times", System.currentTimeMillis() < deadline);
+			Thread.sleep(50);
+		}
+	}
+
+	private static String read(final File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,104 @@
+package gitReleaseNotes;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.Test;
+
+// For reference: GetGitCommits(pathToRepo, reportName, gitSubModules, byModules, allCommits, byVersion, classifier, memoryLimit)
+public class SpilledCommitsTests {
+	private static final int COMMITS = 150;
+	private static final int MODULES = 7;
+
+	@Test
+	public void spilledReportEqualsInMemoryReportTest() throws IOException, GitAPIException {
+		final File dir = Files.createTempDirectory("spilled-commits").toFile();
+		createHistory(dir);
+		final MessageClassifier classifier = new MessageClassifier(Arrays.asList("feat", "fix"), Arrays.asList("ABC"));
+		final String pathToRepo = dir.getPath().replace('\\', '/') + "/";
+
+		new GetGitCommits(pathToRepo, dir + "/in-memory", false, true, true, false, classifier, 0);
+		// About 2MB of records: 64KB runs, merged 7 at a time over several passes.
+		new GetGitCommits(pathToRepo, dir + "/spilled", false, true, true, false, classifier, 64 * 1024);
+		// Below the minimum run size.
+		new GetGitCommits(pathToRepo, dir + "/spilled-tiny", false, true, true, false, classifier, 1);
+
+		final String expected = read(new File(dir, "in-memory.txt"));
+		assertTrue(expected.contains("By issue:"));
+		assertEquals(expected, read(new File(dir, "spilled.txt")));
+		assertEquals(expected, read(new File(dir, "spilled-tiny.txt")));
+	}
+
+	@Test
+	public void closeDeletesRunsTest() throws IOException {
+		final File tmp = new File(System.getProperty("java.io.tmpdir"));
+		final int before = countRunDirs(tmp);
+		final StringBuilder message = new StringBuilder("fix: spilled ");
+		for (int i = 0; i < 1000; i++) {
+			message.append("long message ");
+		}
+
+		// Closed without being written, as when the walk fails after some spills.
+		final SpilledCommits com = new SpilledCommits("repo", 1);
+		for (int i = 0; i < 50; i++) {
+			com.addCommit(new Commit(message.toString(), "author", new Date(0), Collections.singleton("module/file.txt")));
+		}
+		assertEquals(before + 1, countRunDirs(tmp));
+		com.close();
+		assertEquals(before, countRunDirs(tmp));
+	}
+
+	private static int countRunDirs(final File tmp) {
+		int count = 0;
+		for (final String name : tmp.list()) {
+			if (name.startsWith("commits-runs")) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Creates commits touching up to three modules each, with long messages so
+	 * the grouped records outgrow the memory limit.
+	 */
+	private static void createHistory(final File dir) throws IOException, GitAPIException {
+		final Git git = Git.init().setDirectory(dir).call();
+		final StringBuilder body = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			body.append("long message body line ").append(i).append('\n');
+		}
+
+		for (int i = 0; i < COMMITS; i++) {
+			for (int m = i % 3; m < 3; m++) {
+				final File module = new File(dir, "module" + ((i + m) % MODULES));
+				module.mkdirs();
+				final PrintWriter writer = new PrintWriter(new File(module, "file" + (i % 5) + ".txt"), "UTF-8");
+				writer.println(i);
+				writer.close();
+			}
+			git.add().addFilepattern(".").call();
+			final String type = i % 2 == 0 ? "feat" : "fix";
+			git.commit().setAuthor("author", "author@example.com").setCommitter("author", "author@example.com")
+					.setMessage(type + ": change " + i + " ABC-" + (i % 13) + "\n" + body).call();
+			if (i == 0) {
+				git.tag().setName("v0").call();
+			}
+		}
+		git.close();
+	}
+
+	private static String read(final File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+}